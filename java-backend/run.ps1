@@ -1,4 +1,6 @@
-Param()
+Param(
+  [switch]$FastStart
+)
 
 $ErrorActionPreference = "Stop"
 
@@ -22,7 +24,16 @@ if (-Not (Test-Path $pgJar)) {
   throw "Arquivo postgresql.jar ausente"
 }
 
-javac --release 17 -cp $pgJar -d $outDir $javaFiles
+$appJar = Join-Path $outDir "hospital-backend.jar"
+$upToDate = $FastStart -and (Test-Path $appJar) -and -Not (Get-ChildItem -Path $srcDir -Filter *.java -Recurse | Where-Object { $_.LastWriteTime -gt (Get-Item $appJar).LastWriteTime })
+if ($upToDate) {
+  Write-Host "Classes atualizadas, compilação ignorada (fast-start)"
+} else {
+  javac --release 17 -cp $pgJar -d $outDir $javaFiles
+  if ($FastStart) {
+    jar --create --file $appJar -C $outDir com
+  }
+}
 
 Write-Host "Iniciando servidor..."
 
@@ -34,7 +45,22 @@ if (-Not $env:PG_URL -and (-Not $env:PG_HOST -or -Not $env:PG_DB)) {
   Write-Host "Variáveis PG_URL ou PG_HOST/PG_DB não definidas" -ForegroundColor Yellow
   Write-Host "Defina PG_URL=jdbc:postgresql://host:port/db ou PG_HOST/PG_PORT/PG_DB/PG_USER/PG_PASSWORD" -ForegroundColor Yellow
 }
+if (-Not $env:ARCHIVE_DIR) {
+  $env:ARCHIVE_DIR = Join-Path $PSScriptRoot "data\archive"
+}
 if (-Not $env:PG_PASSWORD) {
   Write-Host "PG_PASSWORD não definido. Se o servidor exigir senha, a conexão falhará." -ForegroundColor Yellow
 }
-java --enable-native-access=ALL-UNNAMED -cp $cp com.hospital.tickets.Main
\ No newline at end of file
+if ($FastStart) {
+  # AppCDS só arquiva classes carregadas de JARs, por isso o modo fast-start usa o jar do backend
+  $cp = "${appJar};${pgJarRun};${slf4jApi};${slf4jNop}"
+  $cdsArchive = Join-Path $outDir "hospital-backend.jsa"
+  if (-Not (Test-Path $cdsArchive) -or (Get-Item $cdsArchive).LastWriteTime -lt (Get-Item $appJar).LastWriteTime) {
+    Write-Host "Gerando arquivo AppCDS em $cdsArchive..."
+    java -XX:ArchiveClassesAtExit=$cdsArchive -cp $cp com.hospital.tickets.Main --cds-training
+  }
+  $env:FAST_START = "true"
+  java --enable-native-access=ALL-UNNAMED -XX:SharedArchiveFile=$cdsArchive -Xshare:auto -cp $cp com.hospital.tickets.Main
+} else {
+  java --enable-native-access=ALL-UNNAMED -cp $cp com.hospital.tickets.Main
+}
\ No newline at end of file
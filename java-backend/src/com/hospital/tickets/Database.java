@@ -1,16 +1,28 @@
 package com.hospital.tickets;
 
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.CopyOut;
+
+import java.io.OutputStream;
 import java.sql.*;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 public class Database {
     private static String dbUrl;
     private static String dbUser;
     private static String dbPassword;
 
+    private static final int SCHEMA_VERSION = 6;
+
     public static void init() throws Exception {
         String envUrl = System.getenv("PG_URL");
         if (envUrl != null && !envUrl.isBlank()) {
@@ -30,38 +42,101 @@ public class Database {
             throw new IllegalStateException("PostgreSQL JDBC driver não encontrado no classpath", e);
         }
         try (Connection conn = getConnection()) {
-            try (Statement st = conn.createStatement()) {
-                st.executeUpdate("CREATE TABLE IF NOT EXISTS users (" +
-                        "id TEXT PRIMARY KEY, " +
-                        "email TEXT UNIQUE NOT NULL, " +
-                        "name TEXT NOT NULL, " +
-                        "role TEXT NOT NULL, " +
-                        "sector TEXT, " +
-                        "password_hash TEXT NOT NULL, " +
-                        "created_at TEXT NOT NULL" +
-                        ")");
-
-                st.executeUpdate("CREATE TABLE IF NOT EXISTS tickets (" +
-                        "id TEXT PRIMARY KEY, " +
-                        "title TEXT NOT NULL, " +
-                        "description TEXT NOT NULL, " +
-                        "category TEXT NOT NULL, " +
-                        "priority TEXT NOT NULL, " +
-                        "status TEXT NOT NULL, " +
-                        "location TEXT, " +
-                        "requester_name TEXT, " +
-                        "requester_sector TEXT, " +
-                        "assigned_to TEXT, " +
-                        "user_id TEXT NOT NULL, " +
-                        "created_at TEXT NOT NULL, " +
-                        "updated_at TEXT NOT NULL" +
-                        ")");
+            if (readSchemaVersion(conn) < SCHEMA_VERSION) {
+                try (Statement st = conn.createStatement()) {
+                    st.executeUpdate("CREATE TABLE IF NOT EXISTS users (" +
+                            "id TEXT PRIMARY KEY, " +
+                            "email TEXT UNIQUE NOT NULL, " +
+                            "name TEXT NOT NULL, " +
+                            "role TEXT NOT NULL, " +
+                            "sector TEXT, " +
+                            "password_hash TEXT NOT NULL, " +
+                            "created_at TEXT NOT NULL" +
+                            ")");
+
+                    st.executeUpdate("CREATE TABLE IF NOT EXISTS tickets (" +
+                            "id TEXT PRIMARY KEY, " +
+                            "title TEXT NOT NULL, " +
+                            "description TEXT NOT NULL, " +
+                            "category TEXT NOT NULL, " +
+                            "priority TEXT NOT NULL, " +
+                            "status TEXT NOT NULL, " +
+                            "location TEXT, " +
+                            "requester_name TEXT, " +
+                            "requester_sector TEXT, " +
+                            "assigned_to TEXT, " +
+                            "user_id TEXT NOT NULL, " +
+                            "created_at TEXT NOT NULL, " +
+                            "updated_at TEXT NOT NULL" +
+                            ")");
+
+                    st.executeUpdate("CREATE TABLE IF NOT EXISTS tickets_archive (" +
+                            "id TEXT PRIMARY KEY, " +
+                            "title TEXT NOT NULL, " +
+                            "description TEXT NOT NULL, " +
+                            "category TEXT NOT NULL, " +
+                            "priority TEXT NOT NULL, " +
+                            "status TEXT NOT NULL, " +
+                            "location TEXT, " +
+                            "requester_name TEXT, " +
+                            "requester_sector TEXT, " +
+                            "assigned_to TEXT, " +
+                            "user_id TEXT NOT NULL, " +
+                            "created_at TEXT NOT NULL, " +
+                            "updated_at TEXT NOT NULL, " +
+                            "archived_at TEXT NOT NULL" +
+                            ")");
+
+                    st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_tickets_created_at ON tickets (created_at DESC)");
+                    st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_tickets_user_created_at ON tickets (user_id, created_at DESC)");
+                    st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_tickets_finished_updated_at ON tickets (updated_at) WHERE status IN ('Resolvido', 'Fechado')");
+                    st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_tickets_archive_user_created_at ON tickets_archive (user_id, created_at DESC)");
+                    st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_tickets_archive_created_at ON tickets_archive (created_at)");
+                    st.executeUpdate("DROP INDEX IF EXISTS idx_tickets_open_queue");
+                    st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_tickets_open_queue_rank ON tickets ((" + PRIORITY_RANK_SQL + "), created_at) " +
+                            "WHERE " + OPEN_QUEUE_PREDICATE);
+                    st.executeUpdate("UPDATE users SET email=LOWER(email) WHERE email<>LOWER(email)");
+                    st.executeUpdate("CREATE UNIQUE INDEX IF NOT EXISTS idx_users_email_lower ON users (LOWER(email))");
+                    st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_users_created_at ON users (created_at DESC)");
+                    st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_users_sector_created_at ON users (sector, created_at DESC)");
+                    st.executeUpdate("CREATE TABLE IF NOT EXISTS schema_version (version INTEGER NOT NULL)");
+                }
+                writeSchemaVersion(conn);
             }
+            List<Map<String, Object>> open = listOpenTickets(conn);
+            TicketQueue.load(open);
+            SlaEngine.load(open);
         } catch (SQLException e) {
             throw new IllegalStateException("Falha ao conectar ao PostgreSQL. Defina PG_URL ou PG_HOST, PG_PORT, PG_DB, PG_USER, PG_PASSWORD.", e);
         }
     }
 
+    private static int readSchemaVersion(Connection conn) {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            return 0;
+        }
+    }
+
+    private static void writeSchemaVersion(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate("DELETE FROM schema_version");
+            st.executeUpdate("INSERT INTO schema_version (version) VALUES (" + SCHEMA_VERSION + ")");
+        }
+    }
+
+    public static void warmUp() throws Exception {
+        findUserByEmail("warmup@localhost");
+        findTicketById("warmup");
+        countTickets();
+        try (Connection conn = getConnection()) {
+            firstLiveHint(conn, List.of("warmup"), null, null);
+            lockNextOpenTicket(conn, List.of("warmup"), null, null);
+        }
+    }
+
     private static Connection getConnection() throws SQLException {
         return DriverManager.getConnection(dbUrl, dbUser, dbPassword);
     }
@@ -82,25 +157,39 @@ public class Database {
         }
     }
 
+    public static String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
     public static Map<String, Object> findUserByEmail(String email) throws Exception {
+        String normalized = normalizeEmail(email);
+        Map<String, Object> cached = UserCache.getByEmail(normalized);
+        if (cached != null) return cached;
+        long epoch = UserCache.epoch();
         try (Connection conn = getConnection();
-             PreparedStatement ps = conn.prepareStatement("SELECT id, email, name, role, sector, password_hash, created_at FROM users WHERE LOWER(email)=LOWER(?)")) {
-            ps.setString(1, email);
+             PreparedStatement ps = conn.prepareStatement("SELECT id, email, name, role, sector, password_hash, created_at FROM users WHERE LOWER(email)=?")) {
+            ps.setString(1, normalized);
             try (ResultSet rs = ps.executeQuery()) {
                 if (!rs.next()) return null;
-                Map<String, Object> map = new HashMap<>();
-                map.put("id", rs.getString("id"));
-                map.put("email", rs.getString("email"));
-                map.put("name", rs.getString("name"));
-                map.put("role", rs.getString("role"));
-                map.put("sector", rs.getString("sector"));
-                map.put("password_hash", rs.getString("password_hash"));
-                map.put("created_at", rs.getString("created_at"));
+                Map<String, Object> map = userFromRow(rs);
+                UserCache.put(map, epoch);
                 return map;
             }
         }
     }
 
+    private static Map<String, Object> userFromRow(ResultSet rs) throws SQLException {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", rs.getString("id"));
+        map.put("email", rs.getString("email"));
+        map.put("name", rs.getString("name"));
+        map.put("role", rs.getString("role"));
+        map.put("sector", rs.getString("sector"));
+        map.put("password_hash", rs.getString("password_hash"));
+        map.put("created_at", rs.getString("created_at"));
+        return map;
+    }
+
     public static Map<String, Object> findTicketById(String id) throws Exception {
         try (Connection conn = getConnection();
              PreparedStatement ps = conn.prepareStatement("SELECT id, title, description, category, priority, status, location, requester_name, requester_sector, assigned_to, user_id, created_at, updated_at FROM tickets WHERE id=?")) {
@@ -131,7 +220,7 @@ public class Database {
              PreparedStatement ps = conn.prepareStatement(
                      "INSERT INTO users (id, email, name, role, sector, password_hash, created_at) VALUES (?,?,?,?,?,?,?)")) {
             ps.setString(1, String.valueOf(user.get("id")));
-            ps.setString(2, String.valueOf(user.get("email")));
+            ps.setString(2, normalizeEmail(String.valueOf(user.get("email"))));
             ps.setString(3, String.valueOf(user.get("name")));
             ps.setString(4, String.valueOf(user.get("role")));
             ps.setString(5, String.valueOf(user.get("sector")));
@@ -160,6 +249,8 @@ public class Database {
             ps.setString(13, String.valueOf(t.get("updated_at")));
             ps.executeUpdate();
         }
+        TicketQueue.track(t);
+        SlaEngine.track(t);
     }
 
     public static void updateTicket(Map<String, Object> t) throws Exception {
@@ -181,6 +272,8 @@ public class Database {
             ps.setString(13, String.valueOf(t.get("id")));
             ps.executeUpdate();
         }
+        TicketQueue.track(t);
+        SlaEngine.track(t);
     }
 
     public static void updateTicketStatus(String id, String status, String updatedAt) throws Exception {
@@ -191,12 +284,23 @@ public class Database {
             ps.setString(3, id);
             ps.executeUpdate();
         }
+        if (TicketQueue.OPEN_STATUS.equals(status)) {
+            Map<String, Object> t = findTicketById(id);
+            if (t != null) {
+                TicketQueue.track(t);
+                SlaEngine.track(t);
+            }
+        } else {
+            TicketQueue.remove(id);
+            SlaEngine.remove(id);
+        }
     }
 
-    public static void updateUserProfile(String id, String name, String sector) throws Exception {
+    public static Map<String, Object> updateUserProfile(String id, String name, String sector) throws Exception {
         try (Connection conn = getConnection();
              PreparedStatement ps = conn.prepareStatement(
-                     "UPDATE users SET name=COALESCE(?, name), sector=COALESCE(?, sector) WHERE id=?")) {
+                     "UPDATE users SET name=COALESCE(?, name), sector=COALESCE(?, sector) WHERE id=? " +
+                             "RETURNING id, email, name, role, sector, password_hash, created_at")) {
             if (name == null || name.isBlank()) {
                 ps.setNull(1, Types.VARCHAR);
             } else {
@@ -208,7 +312,11 @@ public class Database {
                 ps.setString(2, sector);
             }
             ps.setString(3, id);
-            ps.executeUpdate();
+            try (ResultSet rs = ps.executeQuery()) {
+                Map<String, Object> u = rs.next() ? userFromRow(rs) : null;
+                UserCache.invalidate(id);
+                return u;
+            }
         }
     }
 
@@ -218,48 +326,283 @@ public class Database {
             ps.setString(1, id);
             ps.executeUpdate();
         }
+        TicketQueue.remove(id);
+        SlaEngine.remove(id);
+    }
+
+    private static final String TICKET_COLUMNS = "id, title, description, category, priority, status, location, requester_name, requester_sector, assigned_to, user_id, created_at, updated_at";
+
+    private static final String PRIORITY_RANK_SQL = "CASE priority WHEN 'Urgente' THEN 0 WHEN 'Alta' THEN 1 WHEN 'Média' THEN 2 WHEN 'Baixa' THEN 3 ELSE 4 END";
+
+    private static final String OPEN_QUEUE_PREDICATE = "status='" + TicketQueue.OPEN_STATUS + "' AND COALESCE(assigned_to, '')=''";
+
+    private static Map<String, Object> ticketFromRow(ResultSet rs) throws SQLException {
+        Map<String, Object> t = new HashMap<>();
+        t.put("id", rs.getString("id"));
+        t.put("title", rs.getString("title"));
+        t.put("description", rs.getString("description"));
+        t.put("category", rs.getString("category"));
+        t.put("priority", rs.getString("priority"));
+        t.put("status", rs.getString("status"));
+        t.put("location", rs.getString("location"));
+        t.put("requester_name", rs.getString("requester_name"));
+        t.put("requester_sector", rs.getString("requester_sector"));
+        t.put("assigned_to", rs.getString("assigned_to"));
+        t.put("user_id", rs.getString("user_id"));
+        t.put("created_at", rs.getString("created_at"));
+        t.put("updated_at", rs.getString("updated_at"));
+        return t;
+    }
+
+    public static Set<String> openTicketIds(List<String> ids) throws Exception {
+        Set<String> open = new HashSet<>();
+        if (ids.isEmpty()) return open;
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT id FROM tickets WHERE id = ANY(?) AND status=?")) {
+            ps.setArray(1, conn.createArrayOf("text", ids.toArray()));
+            ps.setString(2, TicketQueue.OPEN_STATUS);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) open.add(rs.getString("id"));
+            }
+        }
+        return open;
+    }
+
+    public static Map<String, Object> findArchivedTicketById(String id) throws Exception {
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT " + TICKET_COLUMNS + " FROM tickets_archive WHERE id=?")) {
+            ps.setString(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? ticketFromRow(rs) : null;
+            }
+        }
+    }
+
+    private static List<Map<String, Object>> listOpenTickets(Connection conn) throws SQLException {
+        List<Map<String, Object>> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT " + TICKET_COLUMNS + " FROM tickets WHERE status=?")) {
+            ps.setString(1, TicketQueue.OPEN_STATUS);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(ticketFromRow(rs));
+            }
+        }
+        return list;
+    }
+
+    public static Map<String, Object> claimNextTicket(String technician, String category, String sector, String claimedStatus) throws Exception {
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Map<String, Object> t = null;
+                List<String> hinted = TicketQueue.candidates(category, sector, 32);
+                if (!hinted.isEmpty()) {
+                    Map<String, Object> best = firstLiveHint(conn, hinted, category, sector);
+                    if (best != null && !hasOpenTicketAhead(conn, best, category, sector)) {
+                        t = lockNextOpenTicket(conn, List.of(String.valueOf(best.get("id"))), null, null);
+                    }
+                }
+                if (t == null) {
+                    t = lockNextOpenTicket(conn, null, category, sector);
+                }
+                if (t == null) {
+                    conn.commit();
+                    return null;
+                }
+                String now = Instant.now().toString();
+                try (PreparedStatement ps = conn.prepareStatement("UPDATE tickets SET assigned_to=?, status=?, updated_at=? WHERE id=?")) {
+                    ps.setString(1, technician);
+                    ps.setString(2, claimedStatus);
+                    ps.setString(3, now);
+                    ps.setString(4, String.valueOf(t.get("id")));
+                    ps.executeUpdate();
+                }
+                conn.commit();
+                t.put("assigned_to", technician);
+                t.put("status", claimedStatus);
+                t.put("updated_at", now);
+                TicketQueue.remove(String.valueOf(t.get("id")));
+                SlaEngine.track(t);
+                return t;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static Map<String, Object> firstLiveHint(Connection conn, List<String> hinted, String category, String sector) throws SQLException {
+        Map<String, Object> best = null;
+        Set<String> live = new HashSet<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT id, priority, category, requester_sector, created_at FROM tickets WHERE " +
+                OPEN_QUEUE_PREDICATE + " AND id = ANY(?) ORDER BY " + PRIORITY_RANK_SQL + ", created_at")) {
+            ps.setArray(1, conn.createArrayOf("text", hinted.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    live.add(rs.getString("id"));
+                    if (best != null) continue;
+                    if (category != null && !category.equalsIgnoreCase(Objects.toString(rs.getString("category"), ""))) continue;
+                    if (sector != null && !sector.equalsIgnoreCase(Objects.toString(rs.getString("requester_sector"), ""))) continue;
+                    best = new HashMap<>();
+                    best.put("id", rs.getString("id"));
+                    best.put("priority", rs.getString("priority"));
+                    best.put("created_at", rs.getString("created_at"));
+                }
+            }
+        }
+        for (String id : hinted) {
+            if (!live.contains(id)) TicketQueue.remove(id);
+        }
+        return best;
+    }
+
+    private static boolean hasOpenTicketAhead(Connection conn, Map<String, Object> t, String category, String sector) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT 1 FROM tickets WHERE " + OPEN_QUEUE_PREDICATE);
+        if (category != null) sql.append(" AND LOWER(category)=LOWER(?)");
+        if (sector != null) sql.append(" AND LOWER(requester_sector)=LOWER(?)");
+        sql.append(" AND ((").append(PRIORITY_RANK_SQL).append("), created_at) < (?, ?) LIMIT 1");
+        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            int i = 1;
+            if (category != null) ps.setString(i++, category);
+            if (sector != null) ps.setString(i++, sector);
+            ps.setInt(i++, TicketQueue.priorityRank(String.valueOf(t.get("priority"))));
+            ps.setString(i, String.valueOf(t.get("created_at")));
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
     }
 
-    public static List<Map<String, Object>> listTickets() throws Exception {
+    private static Map<String, Object> lockNextOpenTicket(Connection conn, List<String> ids, String category, String sector) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT " + TICKET_COLUMNS + " FROM tickets WHERE " + OPEN_QUEUE_PREDICATE);
+        if (ids != null) sql.append(" AND id = ANY(?)");
+        if (category != null) sql.append(" AND LOWER(category)=LOWER(?)");
+        if (sector != null) sql.append(" AND LOWER(requester_sector)=LOWER(?)");
+        sql.append(" ORDER BY ").append(PRIORITY_RANK_SQL).append(", created_at LIMIT 1 FOR UPDATE SKIP LOCKED");
+        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            int i = 1;
+            if (ids != null) ps.setArray(i++, conn.createArrayOf("text", ids.toArray()));
+            if (category != null) ps.setString(i++, category);
+            if (sector != null) ps.setString(i++, sector);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return null;
+                return ticketFromRow(rs);
+            }
+        }
+    }
+
+    public static List<Map<String, Object>> listTickets(String userId, boolean includeArchived) throws Exception {
+        String where = userId == null ? "" : " WHERE user_id=?";
+        String sql = "SELECT " + TICKET_COLUMNS + " FROM tickets" + where;
+        if (includeArchived) {
+            sql += " UNION ALL SELECT " + TICKET_COLUMNS + " FROM tickets_archive" + where;
+        }
+        sql += " ORDER BY created_at DESC";
         List<Map<String, Object>> list = new ArrayList<>();
         try (Connection conn = getConnection();
-             PreparedStatement ps = conn.prepareStatement("SELECT id, title, description, category, priority, status, location, requester_name, requester_sector, assigned_to, user_id, created_at, updated_at FROM tickets ORDER BY created_at DESC");
-             ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                Map<String, Object> t = new HashMap<>();
-                t.put("id", rs.getString("id"));
-                t.put("title", rs.getString("title"));
-                t.put("description", rs.getString("description"));
-                t.put("category", rs.getString("category"));
-                t.put("priority", rs.getString("priority"));
-                t.put("status", rs.getString("status"));
-                t.put("location", rs.getString("location"));
-                t.put("requester_name", rs.getString("requester_name"));
-                t.put("requester_sector", rs.getString("requester_sector"));
-                t.put("assigned_to", rs.getString("assigned_to"));
-                t.put("user_id", rs.getString("user_id"));
-                t.put("created_at", rs.getString("created_at"));
-                t.put("updated_at", rs.getString("updated_at"));
-                list.add(t);
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (userId != null) {
+                ps.setString(1, userId);
+                if (includeArchived) ps.setString(2, userId);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(ticketFromRow(rs));
             }
         }
         return list;
     }
 
-    public static List<Map<String, Object>> listUsers() throws Exception {
+    public interface ExportTarget {
+        OutputStream begin() throws Exception;
+    }
+
+    public static long exportTickets(String format, String from, String to, boolean includeArchived, ExportTarget target) throws Exception {
+        StringBuilder where = new StringBuilder(" WHERE 1=1");
+        if (from != null) where.append(" AND created_at >= '").append(from).append("'");
+        if (to != null) where.append(" AND created_at < '").append(to).append("'");
+        List<String> tables = includeArchived ? List.of("tickets", "tickets_archive") : List.of("tickets");
+        long rows = 0;
+        OutputStream out = null;
+        try (Connection conn = getConnection()) {
+            conn.setReadOnly(true);
+            CopyManager copy = conn.unwrap(PGConnection.class).getCopyAPI();
+            for (String table : tables) {
+                String select = "SELECT " + TICKET_COLUMNS + " FROM " + table + where + " ORDER BY created_at";
+                String sql;
+                if ("ndjson".equals(format)) {
+                    sql = "COPY (SELECT row_to_json(t) FROM (" + select + ") t) TO STDOUT WITH (FORMAT csv, QUOTE E'\\x01', DELIMITER E'\\x02')";
+                } else {
+                    sql = "COPY (" + select + ") TO STDOUT WITH (FORMAT csv, HEADER " + (out == null) + ")";
+                }
+                CopyOut copyOut = copy.copyOut(sql);
+                try {
+                    byte[] chunk = copyOut.readFromCopy();
+                    if (out == null) out = target.begin();
+                    while (chunk != null) {
+                        out.write(chunk);
+                        chunk = copyOut.readFromCopy();
+                    }
+                    rows += copyOut.getHandledRowCount();
+                } finally {
+                    if (copyOut.isActive()) copyOut.cancelCopy();
+                }
+            }
+        }
+        return rows;
+    }
+
+    public interface ArchiveSink {
+        void write(List<Map<String, Object>> batch) throws Exception;
+    }
+
+    public static int archiveFinishedTickets(String cutoff, int batchSize, ArchiveSink sink) throws Exception {
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "WITH moved AS (" +
+                            "DELETE FROM tickets WHERE id IN (" +
+                            "SELECT id FROM tickets WHERE status IN ('Resolvido', 'Fechado') AND updated_at < ? " +
+                            "ORDER BY updated_at LIMIT ? FOR UPDATE SKIP LOCKED" +
+                            ") RETURNING " + TICKET_COLUMNS +
+                            ") INSERT INTO tickets_archive (" + TICKET_COLUMNS + ", archived_at) " +
+                            "SELECT " + TICKET_COLUMNS + ", ? FROM moved " +
+                            "RETURNING " + TICKET_COLUMNS)) {
+                ps.setString(1, cutoff);
+                ps.setInt(2, batchSize);
+                ps.setString(3, Instant.now().toString());
+                List<Map<String, Object>> batch = new ArrayList<>();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) batch.add(ticketFromRow(rs));
+                }
+                if (!batch.isEmpty() && sink != null) sink.write(batch);
+                conn.commit();
+                return batch.size();
+            } catch (Exception e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    public static List<Map<String, Object>> listUsers(String sector, int limit, int offset) throws Exception {
         List<Map<String, Object>> list = new ArrayList<>();
+        String where = sector == null ? "" : " WHERE sector=?";
         try (Connection conn = getConnection();
-             PreparedStatement ps = conn.prepareStatement("SELECT id, email, name, role, sector, created_at FROM users ORDER BY created_at DESC");
-             ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                Map<String, Object> u = new HashMap<>();
-                u.put("id", rs.getString("id"));
-                u.put("email", rs.getString("email"));
-                u.put("name", rs.getString("name"));
-                u.put("role", rs.getString("role"));
-                u.put("sector", rs.getString("sector"));
-                u.put("created_at", rs.getString("created_at"));
-                list.add(u);
+             PreparedStatement ps = conn.prepareStatement("SELECT id, email, name, role, sector, created_at FROM users" + where + " ORDER BY created_at DESC, id LIMIT ? OFFSET ?")) {
+            int i = 1;
+            if (sector != null) ps.setString(i++, sector);
+            ps.setInt(i++, limit);
+            ps.setInt(i, offset);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Map<String, Object> u = new HashMap<>();
+                    u.put("id", rs.getString("id"));
+                    u.put("email", rs.getString("email"));
+                    u.put("name", rs.getString("name"));
+                    u.put("role", rs.getString("role"));
+                    u.put("sector", rs.getString("sector"));
+                    u.put("created_at", rs.getString("created_at"));
+                    list.add(u);
+                }
             }
         }
         return list;
@@ -0,0 +1,13 @@
+package com.hospital.tickets;
+
+public class Env {
+    public static int intOrDefault(String name, int def) {
+        String v = System.getenv(name);
+        if (v == null || v.isBlank()) return def;
+        try {
+            return Integer.parseInt(v.trim());
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+}
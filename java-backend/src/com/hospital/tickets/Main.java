@@ -6,33 +6,129 @@ import com.sun.net.httpserver.HttpServer;
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
 import java.net.URI;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
 
 public class Main {
     
     private static final String JWT_SECRET = Optional.ofNullable(System.getenv("JAVA_BACKEND_JWT_SECRET")).orElse("LOCAL_DEV_SECRET");
     private static final String CORS_ORIGIN = Optional.ofNullable(System.getenv("CORS_ORIGIN")).orElse("http://localhost:5173");
+    private static final int EXPORT_SLOTS = 2;
+    private static final Semaphore EXPORTS = new Semaphore(EXPORT_SLOTS);
+
+    private static final AtomicBoolean FIRST_REQUEST = new AtomicBoolean(true);
 
     public static void main(String[] args) throws Exception {
+        boolean training = Arrays.asList(args).contains("--cds-training");
+        boolean fastStart = training || "true".equalsIgnoreCase(System.getenv("FAST_START"));
+        SlaEngine.onBreach(t -> System.out.println("SLA violado: ticket " + t.get("id") + " (" + t.get("priority") + ") sem atendimento desde " + t.get("sla_deadline")));
         Database.init();
-        HttpServer server = HttpServer.create(new InetSocketAddress(8080), 0);
+        SlaEngine.start();
+        if (fastStart) {
+            warmUp(Env.intOrDefault("WARMUP_ITERATIONS", 2000));
+        }
+        if (training) {
+            trainCds();
+            System.out.println("Treino AppCDS concluído em " + millisSinceJvmStart() + " ms");
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2) + EXPORT_SLOTS);
+        HttpServer server = createServer(8080, executor);
+        TicketArchiver.start(Main::toJson);
+        server.start();
+        System.out.println("Java backend iniciado em http://localhost:8080 (" + millisSinceJvmStart() + " ms desde o início da JVM)");
+    }
+
+    private static HttpServer createServer(int port, ExecutorService executor) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
 
         server.createContext("/auth/signup", Main::handleSignup);
         server.createContext("/auth/login", Main::handleLogin);
         server.createContext("/auth/me", Main::handleMe);
 
         server.createContext("/tickets", Main::handleTickets);
+        server.createContext("/tickets/queue/claim", Main::handleQueueClaim);
+        server.createContext("/tickets/export", Main::handleTicketExport);
+        server.createContext("/tickets/overdue", Main::handleOverdueTickets);
         server.createContext("/ticket", Main::handleTicketById);
         server.createContext("/users", Main::handleUsers);
 
-        server.setExecutor(null);
-        System.out.println("Java backend iniciado em http://localhost:8080");
+        server.setExecutor(executor);
+        return server;
+    }
+
+    private static void trainCds() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        HttpServer server = createServer(0, executor);
         server.start();
+        try {
+            String base = "http://localhost:" + server.getAddress().getPort();
+            String token = createToken("cds-training", "cds-training@localhost", "cds-training", "tecnico", "");
+            trainingRequest(base + "/tickets", "OPTIONS", null);
+            trainingRequest(base + "/auth/me", "GET", token);
+            trainingRequest(base + "/tickets/overdue", "GET", token);
+        } finally {
+            server.stop(0);
+            executor.shutdown();
+        }
+    }
+
+    private static void trainingRequest(String url, String method, String token) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) URI.create(url).toURL().openConnection();
+        conn.setRequestMethod(method);
+        conn.setRequestProperty("Origin", "http://localhost:5173");
+        if (token != null) conn.setRequestProperty("Authorization", "Bearer " + token);
+        conn.getResponseCode();
+        try (InputStream is = conn.getErrorStream() != null ? conn.getErrorStream() : conn.getInputStream()) {
+            if (is != null) is.readAllBytes();
+        } catch (IOException ignored) {
+        }
+        conn.disconnect();
+    }
+
+    private static long millisSinceJvmStart() {
+        return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+
+    private static void reportFirstRequest() {
+        if (FIRST_REQUEST.compareAndSet(true, false)) {
+            System.out.println("Primeira requisição atendida " + millisSinceJvmStart() + " ms após o início da JVM");
+        }
+    }
+
+    private static void warmUp(int iterations) throws Exception {
+        long start = System.nanoTime();
+        Map<String, Object> ticket = new HashMap<>();
+        ticket.put("id", UUID.randomUUID().toString());
+        ticket.put("title", "warmup");
+        ticket.put("description", "warmup \"json\" \\ encode");
+        ticket.put("priority", "Alta");
+        ticket.put("status", TicketQueue.OPEN_STATUS);
+        ticket.put("assigned_to", null);
+        ticket.put("created_at", Instant.now().toString());
+        List<Map<String, Object>> list = List.of(ticket, ticket, ticket);
+        String token = createToken("warmup", "warmup@localhost", "warmup", "tecnico", "");
+        for (int i = 0; i < iterations; i++) {
+            verifyToken(token);
+            parseJsonObject(toJson(list.get(0)));
+            toJson(list);
+            sha256("warmup" + i);
+        }
+        Database.warmUp();
+        System.out.println("Aquecimento concluído em " + (System.nanoTime() - start) / 1_000_000 + " ms");
     }
 
 
@@ -40,6 +136,7 @@ public class Main {
     
 
     private static void setCors(HttpExchange exchange) {
+        reportFirstRequest();
         String requestOrigin = exchange.getRequestHeaders().getFirst("Origin");
         String allowOrigin = CORS_ORIGIN;
         if (requestOrigin != null && (
@@ -88,6 +185,19 @@ public class Main {
         }
     }
 
+    private static Map<String, String> parseQuery(HttpExchange exchange) {
+        Map<String, String> map = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) return map;
+        for (String pair : query.split("&")) {
+            String[] kv = pair.split("=", 2);
+            String key = URLDecoder.decode(kv[0], StandardCharsets.UTF_8);
+            String val = kv.length == 2 ? URLDecoder.decode(kv[1], StandardCharsets.UTF_8) : "";
+            map.put(key, val);
+        }
+        return map;
+    }
+
     
     private static Map<String, String> parseJsonObject(String json) {
         Map<String, String> map = new HashMap<>();
@@ -134,7 +244,7 @@ public class Main {
         return s;
     }
 
-    private static String toJson(Object o) {
+    static String toJson(Object o) {
         if (o instanceof Map<?, ?> m) {
             StringBuilder sb = new StringBuilder();
             sb.append("{");
@@ -285,9 +395,7 @@ public class Main {
                 if ("tecnico".equals(role)) {
                     newSector = null;
                 }
-                Database.updateUserProfile(uid, newName, newSector);
-
-                Map<String, Object> u = Database.findUserByEmail(payload.get("email"));
+                Map<String, Object> u = Database.updateUserProfile(uid, newName, newSector);
                 if (u == null) { respond(exchange, 404, "{\"error\":\"Usuário não encontrado\"}"); return; }
                 String email = String.valueOf(u.get("email"));
                 String sector = String.valueOf(u.getOrDefault("sector", ""));
@@ -324,20 +432,10 @@ public class Main {
         String method = exchange.getRequestMethod();
         if ("GET".equalsIgnoreCase(method)) {
             try {
-                List<Map<String, Object>> tickets = Database.listTickets();
+                boolean includeArchived = "true".equalsIgnoreCase(parseQuery(exchange).get("include_archived"));
                 String role = user.getOrDefault("role", "usuario");
-                List<Map<String, Object>> visible;
-                if ("tecnico".equals(role)) {
-                    visible = tickets;
-                } else {
-                    String uid = user.get("sub");
-                    visible = new ArrayList<>();
-                    for (Map<String, Object> t : tickets) {
-                        if (Objects.equals(String.valueOf(t.get("user_id")), uid)) {
-                            visible.add(t);
-                        }
-                    }
-                }
+                String uid = "tecnico".equals(role) ? null : user.get("sub");
+                List<Map<String, Object>> visible = Database.listTickets(uid, includeArchived);
                 respond(exchange, 200, toJson(visible));
             } catch (Exception e) {
                 respond(exchange, 500, "{\"error\":\"Falha ao listar tickets\"}");
@@ -373,6 +471,129 @@ public class Main {
         }
     }
 
+    private static void handleQueueClaim(HttpExchange exchange) throws IOException {
+        if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) { respond(exchange, 204, ""); return; }
+        Optional<Map<String, String>> auth = authenticate(exchange);
+        if (auth.isEmpty()) { respond(exchange, 401, "{\"error\":\"Não autenticado\"}"); return; }
+        Map<String, String> user = auth.get();
+        if (!"tecnico".equals(user.getOrDefault("role", "usuario"))) {
+            respond(exchange, 403, "{\"error\":\"Apenas técnicos podem assumir tickets da fila\"}");
+            return;
+        }
+        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) { respond(exchange, 405, "{\"error\":\"Method Not Allowed\"}"); return; }
+        Map<String, String> filters = parseQuery(exchange);
+        filters.putAll(parseJsonObject(readBody(exchange)));
+        String category = filters.getOrDefault("category", "").trim();
+        String sector = filters.getOrDefault("sector", "").trim();
+        String technician = user.getOrDefault("name", "");
+        if (technician.isBlank()) technician = user.get("email");
+        try {
+            Map<String, Object> claimed = Database.claimNextTicket(
+                    technician,
+                    category.isEmpty() ? null : category,
+                    sector.isEmpty() ? null : sector,
+                    "Em andamento");
+            if (claimed == null) { respond(exchange, 404, "{\"error\":\"Nenhum ticket aberto disponível na fila\"}"); return; }
+            respond(exchange, 200, toJson(claimed));
+        } catch (Exception e) {
+            respond(exchange, 500, "{\"error\":\"Falha ao assumir ticket da fila\"}");
+        }
+    }
+
+    private static void handleOverdueTickets(HttpExchange exchange) throws IOException {
+        if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) { respond(exchange, 204, ""); return; }
+        Optional<Map<String, String>> auth = authenticate(exchange);
+        if (auth.isEmpty()) { respond(exchange, 401, "{\"error\":\"Não autenticado\"}"); return; }
+        if (!"tecnico".equals(auth.get().getOrDefault("role", "usuario"))) {
+            respond(exchange, 403, "{\"error\":\"Apenas técnicos podem listar tickets atrasados\"}");
+            return;
+        }
+        if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) { respond(exchange, 405, "{\"error\":\"Method Not Allowed\"}"); return; }
+        try {
+            List<Map<String, Object>> overdue = SlaEngine.overdueTickets();
+            List<String> ids = new ArrayList<>();
+            for (Map<String, Object> t : overdue) ids.add(String.valueOf(t.get("id")));
+            Set<String> open = Database.openTicketIds(ids);
+            List<Map<String, Object>> visible = new ArrayList<>();
+            for (Map<String, Object> t : overdue) {
+                String id = String.valueOf(t.get("id"));
+                if (open.contains(id)) {
+                    visible.add(t);
+                } else {
+                    SlaEngine.remove(id);
+                }
+            }
+            respond(exchange, 200, toJson(visible));
+        } catch (Exception e) {
+            respond(exchange, 500, "{\"error\":\"Falha ao listar tickets atrasados\"}");
+        }
+    }
+
+    private static void handleTicketExport(HttpExchange exchange) throws IOException {
+        if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) { respond(exchange, 204, ""); return; }
+        Optional<Map<String, String>> auth = authenticate(exchange);
+        if (auth.isEmpty()) { respond(exchange, 401, "{\"error\":\"Não autenticado\"}"); return; }
+        if (!"tecnico".equals(auth.get().getOrDefault("role", "usuario"))) {
+            respond(exchange, 403, "{\"error\":\"Apenas técnicos podem exportar tickets\"}");
+            return;
+        }
+        if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) { respond(exchange, 405, "{\"error\":\"Method Not Allowed\"}"); return; }
+        Map<String, String> query = parseQuery(exchange);
+        String format = query.getOrDefault("format", "csv").trim().toLowerCase();
+        if (!("csv".equals(format) || "ndjson".equals(format))) { respond(exchange, 400, "{\"error\":\"Formato inválido: use 'csv' ou 'ndjson'\"}"); return; }
+        String from;
+        String to;
+        try {
+            from = parseExportBound(query.get("from"));
+            to = parseExportBound(query.get("to"));
+        } catch (Exception e) {
+            respond(exchange, 400, "{\"error\":\"Datas inválidas: use AAAA-MM-DD ou ISO-8601\"}");
+            return;
+        }
+        boolean includeArchived = "true".equalsIgnoreCase(query.get("include_archived"));
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        boolean gzip = "true".equalsIgnoreCase(query.get("gzip"))
+                || (acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip"));
+
+        if (!EXPORTS.tryAcquire()) {
+            respond(exchange, 503, "{\"error\":\"Muitas exportações em andamento, tente novamente mais tarde\"}");
+            return;
+        }
+        OutputStream[] body = new OutputStream[1];
+        try {
+            Database.exportTickets(format, from, to, includeArchived, () -> {
+                setCors(exchange);
+                exchange.getResponseHeaders().set("Content-Type", "csv".equals(format) ? "text/csv; charset=utf-8" : "application/x-ndjson; charset=utf-8");
+                exchange.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"tickets." + format + "\"");
+                if (gzip) exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                exchange.sendResponseHeaders(200, 0);
+                OutputStream os = exchange.getResponseBody();
+                if (gzip) os = new GZIPOutputStream(os, 64 * 1024);
+                body[0] = new BufferedOutputStream(os, 64 * 1024);
+                return body[0];
+            });
+            body[0].close();
+        } catch (Exception e) {
+            System.err.println("Falha ao exportar tickets: " + e.getMessage());
+            if (body[0] == null) {
+                respond(exchange, 500, "{\"error\":\"Falha ao exportar tickets\"}");
+                return;
+            }
+            throw new IOException("Exportação interrompida; conexão abortada sem finalizar a resposta", e);
+        } finally {
+            EXPORTS.release();
+        }
+    }
+
+    private static String parseExportBound(String value) {
+        if (value == null || value.isBlank()) return null;
+        String v = value.trim();
+        if (v.length() == 10) {
+            return LocalDate.parse(v).toString();
+        }
+        return Instant.parse(v).toString();
+    }
+
     private static void handleTicketById(HttpExchange exchange) throws IOException {
         if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) { respond(exchange, 204, ""); return; }
         Optional<Map<String, String>> auth = authenticate(exchange);
@@ -387,8 +608,20 @@ public class Main {
         String method = exchange.getRequestMethod();
         try {
             Map<String, Object> found = Database.findTicketById(id);
+            if (found == null && "GET".equalsIgnoreCase(method) && parts.length == 3) {
+                found = Database.findArchivedTicketById(id);
+            }
             if (found == null) { respond(exchange, 404, "{\"error\":\"Ticket não encontrado\"}"); return; }
 
+            if ("GET".equalsIgnoreCase(method) && parts.length == 3) {
+                if (!"tecnico".equals(user.getOrDefault("role", "usuario")) && !Objects.equals(String.valueOf(found.get("user_id")), user.get("sub"))) {
+                    respond(exchange, 404, "{\"error\":\"Ticket não encontrado\"}");
+                    return;
+                }
+                respond(exchange, 200, toJson(found));
+                return;
+            }
+
             if ("DELETE".equalsIgnoreCase(method)) {
                 
                 if (!"tecnico".equals(user.getOrDefault("role", "usuario"))) {
@@ -450,8 +683,19 @@ public class Main {
         }
         String method = exchange.getRequestMethod();
         if (!"GET".equalsIgnoreCase(method)) { respond(exchange, 405, "{\"error\":\"Method Not Allowed\"}"); return; }
+        Map<String, String> query = parseQuery(exchange);
+        String sector = query.getOrDefault("sector", "").trim();
+        int limit;
+        int offset;
         try {
-            List<Map<String, Object>> users = Database.listUsers();
+            limit = Math.min(500, Math.max(1, Integer.parseInt(query.getOrDefault("limit", "100"))));
+            offset = Math.max(0, Integer.parseInt(query.getOrDefault("offset", "0")));
+        } catch (NumberFormatException e) {
+            respond(exchange, 400, "{\"error\":\"Paginação inválida\"}");
+            return;
+        }
+        try {
+            List<Map<String, Object>> users = Database.listUsers(sector.isEmpty() ? null : sector, limit, offset);
             respond(exchange, 200, toJson(users));
         } catch (Exception e) {
             respond(exchange, 500, "{\"error\":\"Falha ao listar usuários\"}");
@@ -463,7 +707,10 @@ public class Main {
     private static Optional<Map<String, String>> authenticate(HttpExchange exchange) {
         String auth = exchange.getRequestHeaders().getFirst("Authorization");
         if (auth == null || !auth.startsWith("Bearer ")) return Optional.empty();
-        String token = auth.substring("Bearer ".length());
+        return verifyToken(auth.substring("Bearer ".length()));
+    }
+
+    private static Optional<Map<String, String>> verifyToken(String token) {
         try {
             String[] parts = token.split("\\.");
             if (parts.length != 3) return Optional.empty();
@@ -0,0 +1,196 @@
+package com.hospital.tickets;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+public class SlaEngine {
+    private static final long TICK_MILLIS = 1000L;
+    private static final int WHEEL_SIZE = 512;
+    private static final int MASK = WHEEL_SIZE - 1;
+
+    private static final Map<String, Duration> RESPONSE_TIME = Map.of(
+            "Urgente", minutesEnv("SLA_URGENTE_MINUTES", 15),
+            "Alta", minutesEnv("SLA_ALTA_MINUTES", 30),
+            "Média", minutesEnv("SLA_MEDIA_MINUTES", 120),
+            "Baixa", minutesEnv("SLA_BAIXA_MINUTES", 480)
+    );
+
+    private static final class Timeout {
+        final String id;
+        final long deadline;
+        final Map<String, Object> ticket;
+        long rounds;
+        int slot;
+
+        Timeout(String id, long deadline, Map<String, Object> ticket) {
+            this.id = id;
+            this.deadline = deadline;
+            this.ticket = ticket;
+        }
+    }
+
+    private static final List<LinkedHashSet<Timeout>> wheel = new ArrayList<>(WHEEL_SIZE);
+    private static final Map<String, Timeout> pending = new HashMap<>();
+    private static final ConcurrentHashMap<String, Map<String, Object>> overdue = new ConcurrentHashMap<>();
+    private static final List<Consumer<Map<String, Object>>> listeners = new CopyOnWriteArrayList<>();
+
+    private static long startTime;
+    private static long tick;
+    private static Thread worker;
+
+    static {
+        for (int i = 0; i < WHEEL_SIZE; i++) wheel.add(new LinkedHashSet<>());
+        startTime = System.currentTimeMillis();
+    }
+
+    public static Duration responseTime(String priority) {
+        return RESPONSE_TIME.getOrDefault(priority, RESPONSE_TIME.get("Média"));
+    }
+
+    public static void onBreach(Consumer<Map<String, Object>> listener) {
+        listeners.add(listener);
+    }
+
+    public static synchronized void load(List<Map<String, Object>> openTickets) {
+        for (LinkedHashSet<Timeout> bucket : wheel) bucket.clear();
+        pending.clear();
+        overdue.clear();
+        for (Map<String, Object> t : openTickets) {
+            track(t);
+        }
+    }
+
+    public static synchronized void start() {
+        if (worker == null) {
+            worker = new Thread(SlaEngine::run, "sla-engine");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    public static synchronized void track(Map<String, Object> t) {
+        String id = String.valueOf(t.get("id"));
+        if (!TicketQueue.OPEN_STATUS.equals(String.valueOf(t.get("status")))) {
+            remove(id);
+            return;
+        }
+        long deadline = deadlineOf(t);
+        Map<String, Object> snapshot = snapshot(t, deadline);
+        Timeout current = pending.get(id);
+        if (current != null && current.deadline == deadline) {
+            current.ticket.putAll(snapshot);
+            return;
+        }
+        Map<String, Object> breached = overdue.get(id);
+        if (breached != null && Long.valueOf(deadline).equals(breached.get("sla_deadline_millis"))) {
+            overdue.put(id, snapshot);
+            return;
+        }
+        remove(id);
+        schedule(new Timeout(id, deadline, snapshot));
+    }
+
+    public static synchronized void remove(String id) {
+        Timeout timeout = pending.remove(id);
+        if (timeout != null) wheel.get(timeout.slot).remove(timeout);
+        overdue.remove(id);
+    }
+
+    public static List<Map<String, Object>> overdueTickets() {
+        long now = System.currentTimeMillis();
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (Map<String, Object> t : overdue.values()) {
+            Map<String, Object> copy = new HashMap<>(t);
+            copy.remove("sla_deadline_millis");
+            copy.put("overdue_minutes", (now - (Long) t.get("sla_deadline_millis")) / 60_000L);
+            list.add(copy);
+        }
+        list.sort(Comparator.comparing(m -> String.valueOf(m.get("sla_deadline"))));
+        return list;
+    }
+
+    private static void schedule(Timeout timeout) {
+        long ticks = Math.max((timeout.deadline - startTime + TICK_MILLIS - 1) / TICK_MILLIS, tick);
+        timeout.rounds = (ticks - tick) / WHEEL_SIZE;
+        timeout.slot = (int) (ticks & MASK);
+        wheel.get(timeout.slot).add(timeout);
+        pending.put(timeout.id, timeout);
+    }
+
+    private static void run() {
+        while (true) {
+            long sleep;
+            synchronized (SlaEngine.class) {
+                sleep = startTime + (tick + 1) * TICK_MILLIS - System.currentTimeMillis();
+            }
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            List<Map<String, Object>> fired = new ArrayList<>();
+            synchronized (SlaEngine.class) {
+                Iterator<Timeout> it = wheel.get((int) (tick & MASK)).iterator();
+                while (it.hasNext()) {
+                    Timeout timeout = it.next();
+                    if (timeout.rounds > 0) {
+                        timeout.rounds--;
+                        continue;
+                    }
+                    it.remove();
+                    pending.remove(timeout.id);
+                    overdue.put(timeout.id, timeout.ticket);
+                    fired.add(timeout.ticket);
+                }
+                tick++;
+            }
+            for (Map<String, Object> t : fired) {
+                for (Consumer<Map<String, Object>> listener : listeners) {
+                    try {
+                        listener.accept(t);
+                    } catch (RuntimeException e) {
+                        System.err.println("Falha ao notificar violação de SLA: " + e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    private static long deadlineOf(Map<String, Object> t) {
+        Instant created;
+        try {
+            created = Instant.parse(String.valueOf(t.get("created_at")));
+        } catch (RuntimeException e) {
+            created = Instant.now();
+        }
+        return created.plus(responseTime(String.valueOf(t.get("priority")))).toEpochMilli();
+    }
+
+    private static Map<String, Object> snapshot(Map<String, Object> t, long deadline) {
+        Map<String, Object> s = new HashMap<>();
+        for (String key : new String[]{"id", "title", "category", "priority", "status", "location", "requester_name", "requester_sector", "assigned_to", "user_id", "created_at"}) {
+            s.put(key, t.get(key));
+        }
+        s.put("sla_deadline", Instant.ofEpochMilli(deadline).toString());
+        s.put("sla_deadline_millis", deadline);
+        return s;
+    }
+
+    private static Duration minutesEnv(String name, long def) {
+        long minutes = Optional.ofNullable(System.getenv(name)).map(String::trim).filter(v -> v.matches("\\d+")).map(Long::parseLong).orElse(def);
+        return Duration.ofMinutes(minutes);
+    }
+}
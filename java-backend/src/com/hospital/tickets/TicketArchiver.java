@@ -0,0 +1,94 @@
+package com.hospital.tickets;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+public class TicketArchiver {
+    private static final int ARCHIVE_AFTER_DAYS = Env.intOrDefault("ARCHIVE_AFTER_DAYS", 90);
+    private static final int BATCH_SIZE = Env.intOrDefault("ARCHIVE_BATCH_SIZE", 500);
+    private static final int MAX_BATCHES_PER_RUN = Env.intOrDefault("ARCHIVE_MAX_BATCHES", 20);
+    private static final int INTERVAL_MINUTES = Env.intOrDefault("ARCHIVE_INTERVAL_MINUTES", 60);
+    private static final Path ARCHIVE_DIR = Paths.get(Optional.ofNullable(System.getenv("ARCHIVE_DIR")).orElse("data/archive"));
+    private static final DateTimeFormatter FILE_MONTH = DateTimeFormatter.ofPattern("yyyy-MM").withZone(ZoneOffset.UTC);
+
+    private static ScheduledExecutorService scheduler;
+
+    public static void start(Function<Object, String> encoder) {
+        if (INTERVAL_MINUTES <= 0) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ticket-archiver");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> runOnce(encoder), 1, INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public static int runOnce(Function<Object, String> encoder) {
+        String cutoff = Instant.now().minus(ARCHIVE_AFTER_DAYS, ChronoUnit.DAYS).toString();
+        int total = 0;
+        try {
+            Files.createDirectories(ARCHIVE_DIR);
+            for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+                Path staged = Files.createTempFile(ARCHIVE_DIR, "tickets-", ".ndjson.gz.tmp");
+                int moved;
+                try {
+                    moved = Database.archiveFinishedTickets(cutoff, BATCH_SIZE, batch -> stage(batch, staged, encoder));
+                    if (moved > 0) publish(staged);
+                } finally {
+                    Files.deleteIfExists(staged);
+                }
+                total += moved;
+                if (moved < BATCH_SIZE) break;
+            }
+            if (total > 0) {
+                System.out.println("Arquivamento: " + total + " tickets movidos para tickets_archive");
+            }
+        } catch (Exception e) {
+            System.err.println("Falha no arquivamento de tickets: " + e.getMessage());
+        }
+        return total;
+    }
+
+    private static void stage(List<Map<String, Object>> batch, Path staged, Function<Object, String> encoder) throws Exception {
+        try (BufferedWriter w = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(staged)),
+                StandardCharsets.UTF_8))) {
+            for (Map<String, Object> t : batch) {
+                w.write(encoder.apply(t));
+                w.write('\n');
+            }
+        }
+    }
+
+    private static void publish(Path staged) throws Exception {
+        Path file = ARCHIVE_DIR.resolve("tickets-" + FILE_MONTH.format(Instant.now()) + ".ndjson.gz");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            FileLock lock = channel.lock();
+            try {
+                Files.copy(staged, Channels.newOutputStream(channel));
+            } finally {
+                lock.release();
+            }
+        }
+    }
+}
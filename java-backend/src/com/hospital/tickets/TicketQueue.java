@@ -0,0 +1,82 @@
+package com.hospital.tickets;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+public class TicketQueue {
+    public static final String OPEN_STATUS = "Aberto";
+
+    private record Entry(String id, int rank, String createdAt, String category, String sector) {}
+
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparingInt(Entry::rank)
+            .thenComparing(Entry::createdAt)
+            .thenComparing(Entry::id);
+
+    private static final ConcurrentSkipListSet<Entry> queue = new ConcurrentSkipListSet<>(ORDER);
+    private static final ConcurrentHashMap<String, Entry> byId = new ConcurrentHashMap<>();
+
+    public static int priorityRank(String priority) {
+        if (priority == null) return 4;
+        switch (priority) {
+            case "Urgente": return 0;
+            case "Alta": return 1;
+            case "Média": return 2;
+            case "Baixa": return 3;
+            default: return 4;
+        }
+    }
+
+    public static boolean isClaimable(Map<String, Object> t) {
+        Object assigned = t.get("assigned_to");
+        boolean unassigned = assigned == null || String.valueOf(assigned).isBlank() || "null".equals(String.valueOf(assigned));
+        return OPEN_STATUS.equals(String.valueOf(t.get("status"))) && unassigned;
+    }
+
+    public static synchronized void load(List<Map<String, Object>> openTickets) {
+        queue.clear();
+        byId.clear();
+        for (Map<String, Object> t : openTickets) {
+            track(t);
+        }
+    }
+
+    public static synchronized void track(Map<String, Object> t) {
+        String id = String.valueOf(t.get("id"));
+        if (!isClaimable(t)) {
+            remove(id);
+            return;
+        }
+        Entry entry = new Entry(
+                id,
+                priorityRank(String.valueOf(t.get("priority"))),
+                String.valueOf(t.get("created_at")),
+                t.get("category") == null ? null : String.valueOf(t.get("category")),
+                t.get("requester_sector") == null ? null : String.valueOf(t.get("requester_sector"))
+        );
+        Entry previous = byId.put(id, entry);
+        if (previous != null) queue.remove(previous);
+        queue.add(entry);
+    }
+
+    public static synchronized void remove(String id) {
+        Entry previous = byId.remove(id);
+        if (previous != null) queue.remove(previous);
+    }
+
+    public static List<String> candidates(String category, String sector, int limit) {
+        List<String> ids = new ArrayList<>();
+        for (Entry e : queue) {
+            if (ids.size() >= limit) break;
+            if (category != null && !category.equalsIgnoreCase(Objects.toString(e.category(), ""))) continue;
+            if (sector != null && !sector.equalsIgnoreCase(Objects.toString(e.sector(), ""))) continue;
+            ids.add(e.id());
+        }
+        return ids;
+    }
+}
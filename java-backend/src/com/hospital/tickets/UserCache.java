@@ -0,0 +1,61 @@
+package com.hospital.tickets;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class UserCache {
+    private static final int MAX_ENTRIES = Env.intOrDefault("USER_CACHE_SIZE", 1000);
+    private static final long TTL_MILLIS = Env.intOrDefault("USER_CACHE_TTL_SECONDS", 60) * 1000L;
+
+    private record Entry(Map<String, Object> user, long loadedAt) {}
+
+    private static long writeEpoch;
+
+    private static final Map<String, String> idByEmail = new HashMap<>();
+    private static final LinkedHashMap<String, Entry> byId = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() <= MAX_ENTRIES) return false;
+            idByEmail.remove(String.valueOf(eldest.getValue().user().get("email")));
+            return true;
+        }
+    };
+
+    public static synchronized Map<String, Object> getById(String id) {
+        Entry e = byId.get(id);
+        if (e == null) return null;
+        if (System.currentTimeMillis() - e.loadedAt() > TTL_MILLIS) {
+            evict(id);
+            return null;
+        }
+        return new HashMap<>(e.user());
+    }
+
+    public static synchronized Map<String, Object> getByEmail(String email) {
+        String id = idByEmail.get(email);
+        return id == null ? null : getById(id);
+    }
+
+    public static synchronized long epoch() {
+        return writeEpoch;
+    }
+
+    public static synchronized void put(Map<String, Object> user, long readEpoch) {
+        if (MAX_ENTRIES <= 0 || user == null || readEpoch != writeEpoch) return;
+        String id = String.valueOf(user.get("id"));
+        evict(id);
+        byId.put(id, new Entry(new HashMap<>(user), System.currentTimeMillis()));
+        idByEmail.put(String.valueOf(user.get("email")), id);
+    }
+
+    public static synchronized void invalidate(String id) {
+        writeEpoch++;
+        evict(id);
+    }
+
+    private static void evict(String id) {
+        Entry e = byId.remove(id);
+        if (e != null) idByEmail.remove(String.valueOf(e.user().get("email")));
+    }
+}
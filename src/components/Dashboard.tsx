@@ -21,7 +21,7 @@ export function Dashboard() {
 
   const loadTickets = useCallback(async () => {
     try {
-      const data = await listTickets();
+      const data = await listTickets(showFinished);
       const visible = (data || []).filter(t => showFinished ? true : (t.status !== 'Resolvido' && t.status !== 'Fechado'));
       setTickets(visible);
     } catch (error) {
@@ -47,7 +47,7 @@ export function Dashboard() {
 
   const loadTicketsWithFilter = async (includeFinished: boolean) => {
     try {
-      const data = await listTickets();
+      const data = await listTickets(includeFinished);
       const visible = (data || []).filter(t => includeFinished ? true : (t.status !== 'Resolvido' && t.status !== 'Fechado'));
       setTickets(visible);
     } catch (error) {
@@ -87,8 +87,9 @@ export async function updateMe(payload: { name?: string; sector?: string }): Pro
   return data.user;
 }
 
-export async function listTickets(): Promise<Ticket[]> {
-  const res = await fetch(`${API_URL}/tickets`, { headers: { ...authHeaders() } });
+export async function listTickets(includeArchived = false): Promise<Ticket[]> {
+  const url = includeArchived ? `${API_URL}/tickets?include_archived=true` : `${API_URL}/tickets`;
+  const res = await fetch(url, { headers: { ...authHeaders() } });
   return await handleResponse(res) as Ticket[];
 }
 